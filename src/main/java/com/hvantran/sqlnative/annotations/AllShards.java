@@ -0,0 +1,15 @@
+package com.hvantran.sqlnative.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation to allow an UPDATE or DELETE method of a sharded repository without {@link ShardKey} argument to be executed on all the shards.
+ * INSERT methods always require a {@link ShardKey} argument
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface AllShards {
+}
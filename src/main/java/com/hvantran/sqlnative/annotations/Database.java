@@ -1,19 +1,27 @@
 package com.hvantran.sqlnative.annotations;
 
 
+import com.hvantran.sqlnative.interfaces.ShardingStrategy;
+import com.hvantran.sqlnative.repository.proxy.HashShardingStrategy;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * An annotation to specify database information, it can refer to property by using syntax {property_name}
+ * An annotation to specify database information, it can refer to property by using syntax {property_name}.
+ * A repository can be split across several databases by using {@link #shardUrls()} instead of {@link #url()}
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
 public @interface Database {
 
-    String url ();
+    String url () default "";
+
+    String[] shardUrls () default {};
+
+    Class<? extends ShardingStrategy> shardingStrategy () default HashShardingStrategy.class;
 
     String username () default "";
 
@@ -0,0 +1,15 @@
+package com.hvantran.sqlnative.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation to share one execution between concurrent calls of the same SELECT method with equal parameters.
+ * The result is only shared while the query is in flight, it is not cached. It does not apply to {@link SpillToDisk} methods
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface SingleFlight {
+}
@@ -0,0 +1,20 @@
+package com.hvantran.sqlnative.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation to bound the memory used by the result of a SELECT method. The rows beyond {@link #inMemoryRows()}
+ * are written to a temporary memory-mapped file and mapped to DTO instances when they are accessed.
+ * The rows are fetched from database by {@link #fetchSize()} rows
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface SpillToDisk {
+
+    int inMemoryRows () default 10000;
+
+    int fetchSize () default 1000;
+}
@@ -0,0 +1,48 @@
+package com.hvantran.sqlnative.annotations;
+
+import com.hvantran.sqlnative.interfaces.WriteErrorHandler;
+import com.hvantran.sqlnative.repository.proxy.LoggingWriteErrorHandler;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation to enable write-behind mode for INSERT/UPDATE/DELETE queries of a repository or a specific method.
+ * The queries are put into a bounded buffer and the method returns immediately, a background flusher executes them in batches
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface WriteBehind {
+
+    int capacity () default 10000;
+
+    int batchSize () default 500;
+
+    long flushIntervalMillis () default 1000;
+
+    OverflowPolicy overflowPolicy () default OverflowPolicy.BLOCK;
+
+    /**
+     * The maximum time to wait for room in the buffer with {@link OverflowPolicy#BLOCK}, the call fails after that
+     */
+    long blockTimeoutMillis () default 30000;
+
+    Class<? extends WriteErrorHandler> errorHandler () default LoggingWriteErrorHandler.class;
+
+    enum OverflowPolicy {
+        /**
+         * Wait until the flusher makes room in the buffer, or fail after {@link WriteBehind#blockTimeoutMillis()}
+         */
+        BLOCK,
+        /**
+         * Discard the query and report it to the error handler
+         */
+        DROP,
+        /**
+         * Execute the query on the caller thread
+         */
+        CALLER_RUNS
+    }
+}
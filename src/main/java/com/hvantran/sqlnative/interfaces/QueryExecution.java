@@ -2,6 +2,7 @@ package com.hvantran.sqlnative.interfaces;
 
 import com.hvantran.sqlnative.repository.proxy.QueryInfo;
 import com.hvantran.sqlnative.utils.Pair;
+import org.apache.commons.dbutils.ResultSetHandler;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -13,10 +14,18 @@ public interface QueryExecution {
 
     <T> List<T> execute(QueryInfo queryInfo, Connection connection, Class<T> klass) throws SQLException;
 
+    <T> List<T> executeWithHandler(QueryInfo queryInfo, Connection connection, ResultSetHandler<List<T>> resultSetHandler) throws SQLException;
+
+    <T> List<T> executeStreaming(QueryInfo queryInfo, Connection connection, ResultSetHandler<List<T>> resultSetHandler, int fetchSize) throws SQLException;
+
     int execute(QueryInfo queryInfo, Connection connection) throws SQLException;
 
+    int execute(QueryInfo queryInfo, Connection connection, RowConsumer rowConsumer) throws SQLException;
+
     String generateQueryString(QueryInfo queryInfo);
 
+    String prepareQueryString(QueryInfo queryInfo);
+
     void validateQueryInfo(QueryInfo queryInfo);
 
 }
@@ -0,0 +1,9 @@
+package com.hvantran.sqlnative.interfaces;
+
+/**
+ * A callback which is called for each row of a SELECT query. The given {@link RowView} is reused for all the rows,
+ * so it must not be kept after the callback returns
+ */
+@FunctionalInterface
+public interface RowConsumer extends CheckedConsumer<RowView> {
+}
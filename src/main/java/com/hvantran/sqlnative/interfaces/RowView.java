@@ -0,0 +1,59 @@
+package com.hvantran.sqlnative.interfaces;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+
+/**
+ * A read-only view of the current row of a SELECT query. Column indexes start from 1,
+ * column labels are resolved once per query and matched case-insensitively
+ */
+public interface RowView {
+
+    int getColumnCount();
+
+    int findColumn(String columnLabel);
+
+    boolean wasNull() throws SQLException;
+
+    long getLong(int columnIndex) throws SQLException;
+
+    int getInt(int columnIndex) throws SQLException;
+
+    double getDouble(int columnIndex) throws SQLException;
+
+    boolean getBoolean(int columnIndex) throws SQLException;
+
+    String getString(int columnIndex) throws SQLException;
+
+    BigDecimal getBigDecimal(int columnIndex) throws SQLException;
+
+    Object getObject(int columnIndex) throws SQLException;
+
+    default long getLong(String columnLabel) throws SQLException {
+        return getLong(findColumn(columnLabel));
+    }
+
+    default int getInt(String columnLabel) throws SQLException {
+        return getInt(findColumn(columnLabel));
+    }
+
+    default double getDouble(String columnLabel) throws SQLException {
+        return getDouble(findColumn(columnLabel));
+    }
+
+    default boolean getBoolean(String columnLabel) throws SQLException {
+        return getBoolean(findColumn(columnLabel));
+    }
+
+    default String getString(String columnLabel) throws SQLException {
+        return getString(findColumn(columnLabel));
+    }
+
+    default BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+        return getBigDecimal(findColumn(columnLabel));
+    }
+
+    default Object getObject(String columnLabel) throws SQLException {
+        return getObject(findColumn(columnLabel));
+    }
+}
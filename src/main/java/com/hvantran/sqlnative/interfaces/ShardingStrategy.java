@@ -0,0 +1,10 @@
+package com.hvantran.sqlnative.interfaces;
+
+@FunctionalInterface
+public interface ShardingStrategy {
+
+    /**
+     * @return the index of the shard which contains the given key, from 0 to numberOfShards - 1
+     */
+    int getShardIndex(Object shardKey, int numberOfShards);
+}
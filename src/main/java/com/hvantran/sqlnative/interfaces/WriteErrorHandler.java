@@ -0,0 +1,9 @@
+package com.hvantran.sqlnative.interfaces;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface WriteErrorHandler {
+
+    void onError(List<String> queries, Exception exception);
+}
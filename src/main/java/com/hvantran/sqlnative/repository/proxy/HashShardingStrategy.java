@@ -0,0 +1,49 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.interfaces.CheckedSupplier;
+import com.hvantran.sqlnative.interfaces.ShardingStrategy;
+import com.hvantran.sqlnative.utils.ObjectUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default {@link ShardingStrategy} which routes a key by its hash code.
+ * <p>
+ * Integral numbers are hashed as {@code long}, so the same key is routed to the same shard whether it is passed as
+ * {@code int}, {@code long} or {@code BigInteger}. Enums are hashed by their name. Keys must have a value-based hash code,
+ * the keys which use the identity hash code of {@link Object} are rejected because it changes between JVM runs
+ */
+public class HashShardingStrategy implements ShardingStrategy {
+
+    @Override
+    public int getShardIndex(Object shardKey, int numberOfShards) {
+        return Math.floorMod(getHashCode(shardKey), numberOfShards);
+    }
+
+    private static int getHashCode(Object shardKey) {
+        if (shardKey instanceof Byte || shardKey instanceof Short || shardKey instanceof Integer || shardKey instanceof Long
+                || shardKey instanceof AtomicInteger || shardKey instanceof AtomicLong) {
+            return Long.hashCode(((Number) shardKey).longValue());
+        }
+        if (shardKey instanceof BigInteger bigInteger) {
+            return bigInteger.bitLength() < Long.SIZE ? Long.hashCode(bigInteger.longValue()) : bigInteger.hashCode();
+        }
+        if (shardKey instanceof BigDecimal bigDecimal) {
+            BigDecimal value = bigDecimal.stripTrailingZeros();
+            return value.scale() <= 0 ? getHashCode(value.toBigIntegerExact()) : value.hashCode();
+        }
+        if (shardKey instanceof Float || shardKey instanceof Double) {
+            return Double.hashCode(((Number) shardKey).doubleValue());
+        }
+        if (shardKey instanceof Enum<?> enumKey) {
+            return enumKey.name().hashCode();
+        }
+        CheckedSupplier<Class<?>> hashCodeDeclaringClass = () -> shardKey.getClass().getMethod("hashCode").getDeclaringClass();
+        ObjectUtils.checkThenThrow(hashCodeDeclaringClass.get() == Object.class,
+                "Shard key of type %s does not have a value-based hash code".formatted(shardKey.getClass().getName()));
+        return shardKey.hashCode();
+    }
+}
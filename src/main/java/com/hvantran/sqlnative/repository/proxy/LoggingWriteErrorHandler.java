@@ -0,0 +1,20 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.interfaces.WriteErrorHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Default {@link WriteErrorHandler} which only logs the failed write-behind queries
+ */
+public class LoggingWriteErrorHandler implements WriteErrorHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggingWriteErrorHandler.class);
+
+    @Override
+    public void onError(List<String> queries, Exception exception) {
+        LOGGER.error("Failed to flush {} write-behind queries: {}", queries.size(), queries, exception);
+    }
+}
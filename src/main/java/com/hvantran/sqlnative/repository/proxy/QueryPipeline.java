@@ -0,0 +1,220 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.annotations.SingleFlight;
+import com.hvantran.sqlnative.annotations.SpillToDisk;
+import com.hvantran.sqlnative.annotations.WriteBehind;
+import com.hvantran.sqlnative.interfaces.AppException;
+import com.hvantran.sqlnative.interfaces.GenericRepository;
+import com.hvantran.sqlnative.interfaces.RowConsumer;
+import com.hvantran.sqlnative.utils.ObjectUtils;
+import org.apache.commons.dbutils.handlers.BeanListHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Records several repository calls and executes them together.
+ * <p>
+ * Calls are recorded with {@link #add(Function)}, which returns a future of the call result.
+ * The futures are completed by {@link #execute()}. By default a pipeline of INSERT/UPDATE/DELETE queries only is sent as one
+ * JDBC batch, a pipeline containing SELECT queries is executed one by one on the repository connection.
+ * When the {@link #MULTI_STATEMENT_PROPERTY} property is {@code true}, all recorded queries are sent as one
+ * multi-statement query, this requires the driver to accept several statements in one query string.
+ * <p>
+ * When a query fails, the futures of the queries which are executed before it are completed with their results,
+ * the futures of the failed query and the next queries are completed exceptionally.
+ */
+public class QueryPipeline<T extends GenericRepository> {
+
+    public static final String MULTI_STATEMENT_PROPERTY = "native-db-client.pipeline.multi-statement";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryPipeline.class);
+
+    private final RepoProxyFactory.DefaultInvocationHandler invocationHandler;
+
+    private final T recorder;
+
+    private final List<PipelinedQuery> pipelinedQueries = new ArrayList<>();
+
+    private final List<PipelinedQuery> recordedQueries = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    QueryPipeline(Class<T> kInterface, RepoProxyFactory.DefaultInvocationHandler invocationHandler) {
+        this.invocationHandler = invocationHandler;
+        this.recorder = (T) Proxy.newProxyInstance(kInterface.getClassLoader(), new Class[]{kInterface},
+                (proxy, method, objects) -> record(method, Objects.requireNonNullElse(objects, new Object[0])));
+    }
+
+    /**
+     * Record a repository call, the call is not executed until {@link #execute()} is called
+     *
+     * @param repositoryCall a function which invokes exactly one method on the given repository
+     * @return a future which is completed with the call result when the pipeline is executed
+     */
+    @SuppressWarnings("unchecked")
+    public <R> CompletableFuture<R> add(Function<T, R> repositoryCall) {
+        recordedQueries.clear();
+        repositoryCall.apply(recorder);
+        ObjectUtils.checkThenThrow(recordedQueries.size() != 1, "Pipeline call must invoke exactly one repository method");
+        PipelinedQuery pipelinedQuery = recordedQueries.get(0);
+        pipelinedQueries.add(pipelinedQuery);
+        return (CompletableFuture<R>) pipelinedQuery.result();
+    }
+
+    /**
+     * Execute all recorded calls and complete their futures. The pipeline is empty after executing
+     */
+    public void execute() {
+        ObjectUtils.checkThenThrow(pipelinedQueries.isEmpty(), "Pipeline does not contain any query");
+        List<PipelinedQuery> queries = List.copyOf(pipelinedQueries);
+        pipelinedQueries.clear();
+        try {
+            Connection connection = invocationHandler.openConnection();
+            boolean isMultiStatement = Boolean.parseBoolean(invocationHandler.configuration().getProperty(MULTI_STATEMENT_PROPERTY));
+            if (queries.size() > 1 && isMultiStatement) {
+                executeInOneRoundTrip(queries, connection);
+            } else if (queries.size() > 1 && queries.stream().noneMatch(query -> query.querySelection() == QuerySelection.SELECT)) {
+                executeInOneBatch(queries, connection);
+            } else {
+                for (PipelinedQuery query : queries) {
+                    query.result().complete(query.execute(connection));
+                }
+            }
+        } catch (SQLException | RuntimeException exception) {
+            queries.forEach(query -> query.result().completeExceptionally(exception));
+            throw new AppException(exception);
+        }
+    }
+
+    public int size() {
+        return pipelinedQueries.size();
+    }
+
+    private void executeInOneBatch(List<PipelinedQuery> queries, Connection connection) throws SQLException {
+        LOGGER.info("Executing {} pipelined queries in one batch", queries.size());
+        try (Statement statement = connection.createStatement()) {
+            for (PipelinedQuery query : queries) {
+                statement.addBatch(query.queryString());
+            }
+            int[] updateCounts = statement.executeBatch();
+            ObjectUtils.checkThenThrow(updateCounts.length != queries.size(), "Database returns %d update counts for %d pipelined queries"
+                    .formatted(updateCounts.length, queries.size()));
+            for (int queryIndex = 0; queryIndex < queries.size(); queryIndex++) {
+                queries.get(queryIndex).result().complete(updateCounts[queryIndex]);
+            }
+        } catch (BatchUpdateException exception) {
+            // The driver either stops at the first failed query or continues and marks the failed queries with EXECUTE_FAILED
+            int[] updateCounts = Objects.requireNonNullElse(exception.getUpdateCounts(), new int[0]);
+            for (int queryIndex = 0; queryIndex < Math.min(updateCounts.length, queries.size()); queryIndex++) {
+                if (updateCounts[queryIndex] != Statement.EXECUTE_FAILED) {
+                    queries.get(queryIndex).result().complete(updateCounts[queryIndex]);
+                }
+            }
+            throw exception;
+        }
+    }
+
+    private void executeInOneRoundTrip(List<PipelinedQuery> queries, Connection connection) throws SQLException {
+        String queryString = queries.stream()
+                .map(PipelinedQuery::queryString)
+                .map(String::trim)
+                .map(query -> query.endsWith(";") ? query : query.concat(";"))
+                .collect(Collectors.joining(" "));
+        LOGGER.info("Executing {} pipelined queries: {}", queries.size(), queryString);
+        Object[] results = new Object[queries.size()];
+        int numberOfResults = 0;
+        try (Statement statement = connection.createStatement()) {
+            boolean isResultSet = statement.execute(queryString);
+            for (int queryIndex = 0; queryIndex < queries.size(); queryIndex++) {
+                PipelinedQuery query = queries.get(queryIndex);
+                boolean isSelect = query.querySelection() == QuerySelection.SELECT;
+                if (isResultSet) {
+                    ObjectUtils.checkThenThrow(!isSelect, "Pipelined query %d expects an update count but database returns a result set"
+                            .formatted(queryIndex + 1));
+                    try (ResultSet resultSet = statement.getResultSet()) {
+                        results[queryIndex] = query.handle(resultSet);
+                    }
+                } else {
+                    int updateCount = statement.getUpdateCount();
+                    ObjectUtils.checkThenThrow(updateCount == -1, "Database returns fewer results than pipelined queries");
+                    ObjectUtils.checkThenThrow(isSelect, "Pipelined query %d expects a result set but database returns an update count"
+                            .formatted(queryIndex + 1));
+                    results[queryIndex] = updateCount;
+                }
+                numberOfResults++;
+                isResultSet = statement.getMoreResults();
+            }
+            ObjectUtils.checkThenThrow(isResultSet || statement.getUpdateCount() != -1,
+                    "Database returns more results than pipelined queries");
+        } catch (SQLException exception) {
+            // The queries before the failed one are executed, so their results are kept. A result mismatch fails all the queries instead
+            completeResults(queries, results, numberOfResults);
+            throw exception;
+        }
+        completeResults(queries, results, queries.size());
+    }
+
+    private void completeResults(List<PipelinedQuery> queries, Object[] results, int numberOfResults) {
+        for (int queryIndex = 0; queryIndex < numberOfResults; queryIndex++) {
+            queries.get(queryIndex).result().complete(results[queryIndex]);
+        }
+    }
+
+    private Object record(Method method, Object[] objects) {
+        ObjectUtils.checkThenThrow(method.getDeclaringClass() == GenericRepository.class || method.getDeclaringClass() == Object.class,
+                "Method %s cannot be pipelined".formatted(method.getName()));
+        for (Class<? extends Annotation> annotationClass : List.of(SpillToDisk.class, WriteBehind.class, SingleFlight.class)) {
+            ObjectUtils.checkThenThrow(invocationHandler.getAnnotation(annotationClass, method).isPresent(),
+                    "Method %s cannot be pipelined because it is annotated with %s".formatted(method.getName(), annotationClass.getSimpleName()));
+        }
+        QueryInfo queryInfo = invocationHandler.createQueryInfo(method, objects);
+        QuerySelection querySelection = queryInfo.getQuerySelection();
+        RowConsumer rowConsumer = null;
+        Class<?> mappingClass = null;
+        if (querySelection == QuerySelection.SELECT) {
+            rowConsumer = RepoProxyFactory.DefaultInvocationHandler.getRowConsumer(objects);
+            mappingClass = Objects.isNull(rowConsumer) ? RepoProxyFactory.DefaultInvocationHandler.getMappingClass(objects) : null;
+        }
+        if (Objects.isNull(mappingClass)) {
+            RepoProxyFactory.DefaultInvocationHandler.checkRowCountReturnType(method);
+        }
+        String queryString = querySelection.prepareQueryString(queryInfo);
+        recordedQueries.add(new PipelinedQuery(queryInfo, querySelection, mappingClass, rowConsumer, queryString, new CompletableFuture<>()));
+        return method.getReturnType() == int.class ? 0 : null;
+    }
+
+    private record PipelinedQuery(QueryInfo queryInfo, QuerySelection querySelection, Class<?> mappingClass,
+                                  RowConsumer rowConsumer, String queryString, CompletableFuture<Object> result) {
+
+        Object execute(Connection connection) throws SQLException {
+            if (Objects.nonNull(rowConsumer)) {
+                return querySelection.execute(queryInfo, connection, rowConsumer);
+            }
+            if (querySelection == QuerySelection.SELECT) {
+                return querySelection.execute(queryInfo, connection, mappingClass);
+            }
+            return querySelection.execute(queryInfo, connection);
+        }
+
+        Object handle(ResultSet resultSet) throws SQLException {
+            if (Objects.nonNull(rowConsumer)) {
+                return QuerySelection.consumeRows(resultSet, rowConsumer);
+            }
+            return new BeanListHandler<>(mappingClass).handle(resultSet);
+        }
+    }
+}
@@ -2,16 +2,20 @@ package com.hvantran.sqlnative.repository.proxy;
 
 import com.hvantran.sqlnative.annotations.*;
 import com.hvantran.sqlnative.interfaces.QueryExecution;
+import com.hvantran.sqlnative.interfaces.RowConsumer;
 import com.hvantran.sqlnative.utils.ObjectUtils;
 import com.hvantran.sqlnative.utils.Pair;
 import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.dbutils.handlers.BeanListHandler;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 import java.util.function.Function;
 
@@ -133,6 +137,16 @@ public enum QuerySelection implements QueryExecution {
         return inputString.replace(String.format("{%s}", paramName), String.valueOf(param));
     }
 
+    static int consumeRows(ResultSet resultSet, RowConsumer rowConsumer) throws SQLException {
+        ResultSetRowView rowView = new ResultSetRowView(resultSet);
+        int numberOfRows = 0;
+        while (resultSet.next()) {
+            rowConsumer.accept(rowView);
+            numberOfRows++;
+        }
+        return numberOfRows;
+    }
+
     private String getRawQueryString(QueryInfo queryInfo) {
         if (queryInfo.getNativeQuery() != null) {
             return queryInfo.getNativeQuery().value();
@@ -141,20 +155,62 @@ public enum QuerySelection implements QueryExecution {
     }
 
     @Override
-    public <T> List<T> execute(QueryInfo queryInfo, Connection connection, Class<T> klass) throws SQLException {
+    public String prepareQueryString(QueryInfo queryInfo) {
         validateQueryInfo(queryInfo);
         String rawQueryString = getRawQueryString(queryInfo);
-        String queryString = replaceParamPlaceholders(rawQueryString, queryInfo.getParamPairs());
+        return replaceParamPlaceholders(rawQueryString, queryInfo.getParamPairs());
+    }
+
+    @Override
+    public <T> List<T> execute(QueryInfo queryInfo, Connection connection, Class<T> klass) throws SQLException {
+        return executeWithHandler(queryInfo, connection, new BeanListHandler<>(klass));
+    }
+
+    @Override
+    public <T> List<T> executeWithHandler(QueryInfo queryInfo, Connection connection, ResultSetHandler<List<T>> resultSetHandler) throws SQLException {
+        String queryString = prepareQueryString(queryInfo);
         LOGGER.info("Executing query: {}", queryString);
-        return this.queryRunner.query(connection, queryString, new BeanListHandler<>(klass));
+        return this.queryRunner.query(connection, queryString, resultSetHandler);
+    }
+
+    /**
+     * Execute the query by a forward-only statement with the given fetch size, so the driver does not read the whole result into memory
+     * before the handler gets the first row. Auto-commit is turned off during the query because PostgreSQL only fetches the rows
+     * by a cursor inside a transaction, MySQL Connector/J only streams the rows with {@link Integer#MIN_VALUE} fetch size
+     */
+    @Override
+    public <T> List<T> executeStreaming(QueryInfo queryInfo, Connection connection, ResultSetHandler<List<T>> resultSetHandler, int fetchSize) throws SQLException {
+        ObjectUtils.checkThenThrow(fetchSize <= 0, "Fetch size must be greater than 0");
+        String queryString = prepareQueryString(queryInfo);
+        LOGGER.info("Executing query with fetch size {}: {}", fetchSize, queryString);
+        boolean isAutoCommit = connection.getAutoCommit();
+        if (isAutoCommit) {
+            connection.setAutoCommit(false);
+        }
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            String driverName = connection.getMetaData().getDriverName();
+            statement.setFetchSize(StringUtils.containsIgnoreCase(driverName, "MySQL") ? Integer.MIN_VALUE : fetchSize);
+            try (ResultSet resultSet = statement.executeQuery(queryString)) {
+                return resultSetHandler.handle(resultSet);
+            }
+        } finally {
+            if (isAutoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
     }
 
     @Override
     public int execute(QueryInfo queryInfo, Connection connection) throws SQLException {
-        validateQueryInfo(queryInfo);
-        String rawQueryString = getRawQueryString(queryInfo);
-        String queryString = replaceParamPlaceholders(rawQueryString, queryInfo.getParamPairs());
+        String queryString = prepareQueryString(queryInfo);
         LOGGER.info("Executing query: {}", queryString);
         return this.queryRunner.execute(connection, queryString);
     }
+
+    @Override
+    public int execute(QueryInfo queryInfo, Connection connection, RowConsumer rowConsumer) throws SQLException {
+        String queryString = prepareQueryString(queryInfo);
+        LOGGER.info("Executing query: {}", queryString);
+        return this.queryRunner.query(connection, queryString, resultSet -> consumeRows(resultSet, rowConsumer));
+    }
 }
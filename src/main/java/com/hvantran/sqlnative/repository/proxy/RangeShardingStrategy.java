@@ -0,0 +1,31 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.interfaces.ShardingStrategy;
+import com.hvantran.sqlnative.utils.ObjectUtils;
+
+/**
+ * A {@link ShardingStrategy} which routes numeric keys by ranges. Shard {@code i} contains the keys lower than
+ * {@code getUpperBounds()[i]}, the last shard contains the remaining keys
+ */
+public abstract class RangeShardingStrategy implements ShardingStrategy {
+
+    /**
+     * @return the exclusive upper bounds of the shards in ascending order, it contains numberOfShards - 1 elements
+     */
+    protected abstract long[] getUpperBounds();
+
+    @Override
+    public int getShardIndex(Object shardKey, int numberOfShards) {
+        ObjectUtils.checkThenThrow(!(shardKey instanceof Number), "Range sharding key must be a number");
+        long[] upperBounds = getUpperBounds();
+        ObjectUtils.checkThenThrow(upperBounds.length != numberOfShards - 1,
+                "Range sharding needs %d upper bounds for %d shards".formatted(numberOfShards - 1, numberOfShards));
+        long key = ((Number) shardKey).longValue();
+        for (int shardIndex = 0; shardIndex < upperBounds.length; shardIndex++) {
+            if (key < upperBounds[shardIndex]) {
+                return shardIndex;
+            }
+        }
+        return upperBounds.length;
+    }
+}
@@ -4,6 +4,9 @@ import com.hvantran.sqlnative.annotations.Set;
 import com.hvantran.sqlnative.annotations.*;
 import com.hvantran.sqlnative.interfaces.CheckedSupplier;
 import com.hvantran.sqlnative.interfaces.GenericRepository;
+import com.hvantran.sqlnative.interfaces.RowConsumer;
+import com.hvantran.sqlnative.interfaces.WriteErrorHandler;
+import com.hvantran.sqlnative.utils.InstanceUtils;
 import com.hvantran.sqlnative.utils.ObjectUtils;
 import com.hvantran.sqlnative.utils.Pair;
 import lombok.Getter;
@@ -19,6 +22,9 @@ import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
@@ -39,21 +45,42 @@ public class RepoProxyFactory {
     @SuppressWarnings("unchecked")
     public static <T extends GenericRepository> T getRepositoryProxyInstance(Class<T> kInterface, Properties properties) {
         ClassLoader classLoader = kInterface.getClassLoader();
-        ConnectionManager connectionManager = new ConnectionManager();
+        Database database = kInterface.getAnnotation(Database.class);
+        ObjectUtils.checkThenThrow(Objects.isNull(database), "Repository must be annotated with @Database");
+        ShardRouter shardRouter = new ShardRouter(database, properties);
         return (T) Proxy.newProxyInstance(
-                classLoader, new Class[]{kInterface}, new DefaultInvocationHandler(connectionManager, properties, kInterface));
+                classLoader, new Class[]{kInterface}, new DefaultInvocationHandler(shardRouter, properties, kInterface,
+                        new ConcurrentHashMap<>(), new ConcurrentHashMap<>()));
     }
 
-    private record DefaultInvocationHandler(ConnectionManager connectionManager, Properties configuration,
-                                            Class<? extends GenericRepository> genericRepository) implements InvocationHandler {
+    /**
+     * Create a {@link QueryPipeline} which records calls on the given repository and executes them in one round trip
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends GenericRepository> QueryPipeline<T> newPipeline(T repository) {
+        ObjectUtils.checkThenThrow(!Proxy.isProxyClass(repository.getClass()), "Repository must be created by RepoProxyFactory");
+        InvocationHandler invocationHandler = Proxy.getInvocationHandler(repository);
+        ObjectUtils.checkThenThrow(!(invocationHandler instanceof DefaultInvocationHandler), "Repository must be created by RepoProxyFactory");
+        DefaultInvocationHandler defaultInvocationHandler = (DefaultInvocationHandler) invocationHandler;
+        ObjectUtils.checkThenThrow(defaultInvocationHandler.shardRouter().isSharded(), "Pipeline is not supported for sharded repositories");
+        return new QueryPipeline<>((Class<T>) defaultInvocationHandler.genericRepository(), defaultInvocationHandler);
+    }
+
+    record DefaultInvocationHandler(ShardRouter shardRouter, Properties configuration,
+                                    Class<? extends GenericRepository> genericRepository,
+                                    Map<Pair<WriteBehind, Integer>, WriteBehindBuffer> writeBehindBuffers,
+                                    Map<List<Object>, CompletableFuture<List<?>>> inFlightQueries) implements InvocationHandler {
 
         @Override
-            public Object invoke(Object proxy, Method method, Object[] objects) throws Throwable {
+            public Object invoke(Object proxy, Method method, Object[] arguments) throws Throwable {
                 LOGGER.debug("Invoke method name: {}", method.getName());
+                Object[] objects = Objects.requireNonNullElse(arguments, new Object[0]);
 
                 if ("close".equals(method.getName())) {
-                    ObjectUtils.checkThenThrow(Objects.isNull(connectionManager.getConnection()), "Cannot close connection because it is not open");
-                    connectionManager.getConnection().close();
+                    ObjectUtils.checkThenThrow(!shardRouter.hasConnection() && writeBehindBuffers.isEmpty(),
+                            "Cannot close connection because it is not open");
+                    writeBehindBuffers.values().forEach(WriteBehindBuffer::close);
+                    shardRouter.close();
                     LOGGER.info("Connection is closed");
                     return null;
                 }
@@ -62,59 +89,197 @@ public class RepoProxyFactory {
                     return null;
                 }
 
-                Connection connection = Optional.ofNullable(connectionManager.getConnection())
-                        .orElseGet(() -> {
-                            Database database = genericRepository.getAnnotation(Database.class);
-                            return connectionManager.initialConnection(database, configuration);
-                        });
-
-
-                Annotation[][] parameterAnnotations = method.getParameterAnnotations();
-                List<Pair<Param, Object>> paramValueMap = IntStream.range(0, objects.length).mapToObj(index -> {
-                    Optional<Param> paramOptional = Arrays.stream(parameterAnnotations[index])
-                            .filter(Param.class::isInstance)
-                            .map(Param.class::cast)
-                            .findFirst();
-                    return paramOptional.map(param -> Pair.of(param, objects[index])).orElse(null);
-                }).filter(Objects::nonNull).toList();
-
-
-                QueryInfo queryInfo = QueryInfo.builder()
-                        .select(method.getAnnotation(Select.class))
-                        .from(method.getAnnotation(From.class))
-                        .where(method.getAnnotation(Where.class))
-                        .orderBy(method.getAnnotation(OrderBy.class))
-                        .insert(method.getAnnotation(Insert.class))
-                        .values(method.getAnnotation(Values.class))
-                        .update(method.getAnnotation(Update.class))
-                        .set(method.getAnnotation(Set.class))
-                        .delete(method.getAnnotation(Delete.class))
-                        .nativeQuery(method.getAnnotation(NativeQuery.class))
-                        .paramPairs(paramValueMap)
-                        .build();
-
+                QueryInfo queryInfo = createQueryInfo(method, objects);
                 QuerySelection querySelection = queryInfo.getQuerySelection();
-                if (querySelection == QuerySelection.SELECT) {
-                    Class<?> mappingToClass = IntStream.range(0, objects.length)
-                            .filter(parameterIndex -> objects[parameterIndex] instanceof Class<?>)
-                            .mapToObj(parameterIndex -> (Class<?>) objects[parameterIndex])
-                            .findFirst().orElse(null);
-                    ObjectUtils.checkThenThrow(Objects.isNull(mappingToClass), "SELECT statement must be mapped to a DTO class");
-                    return querySelection.execute(queryInfo, connection, mappingToClass);
+                if (querySelection != QuerySelection.SELECT || Objects.nonNull(getRowConsumer(objects))) {
+                    checkRowCountReturnType(method);
+                }
+                OptionalInt shardIndex = getShardIndex(method, objects);
+                if (shardIndex.isPresent()) {
+                    return execute(method, objects, queryInfo, querySelection, shardIndex.getAsInt());
+                }
+
+                ObjectUtils.checkThenThrow(querySelection == QuerySelection.INSERT,
+                        "INSERT method %s of a sharded repository requires a ShardKey argument".formatted(method.getName()));
+                ObjectUtils.checkThenThrow(querySelection != QuerySelection.SELECT && !method.isAnnotationPresent(AllShards.class),
+                        "%s method %s of a sharded repository requires a ShardKey argument or AllShards annotation"
+                                .formatted(querySelection, method.getName()));
+                LOGGER.debug("Execute method {} on all {} shards", method.getName(), shardRouter.getNumberOfShards());
+                RowConsumer rowConsumer = querySelection == QuerySelection.SELECT ? getRowConsumer(objects) : null;
+                Comparator<Object> rowComparator = null;
+                if (querySelection == QuerySelection.SELECT && Objects.isNull(rowConsumer)) {
+                    ObjectUtils.checkThenThrow(getAnnotation(SpillToDisk.class, method).isPresent(),
+                            "SpillToDisk is not supported for queries without shard key");
+                    OrderBy orderBy = queryInfo.getOrderBy();
+                    rowComparator = Objects.isNull(orderBy) ? null : ShardResultMerger.getComparator(orderBy, getMappingClass(objects));
+                }
+                List<Object> shardResults;
+                if (Objects.nonNull(rowConsumer)) {
+                    // A row consumer is not required to be thread-safe, so the shards are consumed one by one
+                    shardResults = new ArrayList<>(shardRouter.getNumberOfShards());
+                    for (int index = 0; index < shardRouter.getNumberOfShards(); index++) {
+                        shardResults.add(execute(method, objects, queryInfo, querySelection, index));
+                    }
+                } else {
+                    shardResults = shardRouter.scatter(index -> () -> execute(method, objects, queryInfo, querySelection, index));
+                }
+                return ShardResultMerger.merge(shardResults, rowComparator);
+            }
+
+        private Object execute(Method method, Object[] objects, QueryInfo queryInfo, QuerySelection querySelection, int shardIndex) throws Exception {
+            if (querySelection == QuerySelection.SELECT) {
+                RowConsumer rowConsumer = getRowConsumer(objects);
+                if (Objects.nonNull(rowConsumer)) {
+                    int numberOfRows = querySelection.execute(queryInfo, openConnection(shardIndex), rowConsumer);
+                    return toRowCountResult(method, numberOfRows);
                 }
-                return querySelection.execute(queryInfo, connection);
+                Class<?> mappingClass = getMappingClass(objects);
+                Optional<SpillToDisk> spillToDisk = getAnnotation(SpillToDisk.class, method);
+                if (spillToDisk.isPresent()) {
+                    return querySelection.executeStreaming(queryInfo, openConnection(shardIndex),
+                            new SpillableBeanListHandler<>(mappingClass, spillToDisk.get().inMemoryRows()), spillToDisk.get().fetchSize());
+                }
+                if (getAnnotation(SingleFlight.class, method).isPresent()) {
+                    return executeSingleFlight(method, queryInfo, mappingClass, shardIndex);
+                }
+                return querySelection.execute(queryInfo, openConnection(shardIndex), mappingClass);
+            }
+
+            Optional<WriteBehind> writeBehind = getAnnotation(WriteBehind.class, method);
+            if (writeBehind.isPresent()) {
+                ObjectUtils.checkThenThrow(shardRouter.isClosed(), "Write-behind buffer is closed");
+                writeBehindBuffers.computeIfAbsent(Pair.of(writeBehind.get(), shardIndex), this::newWriteBehindBuffer)
+                        .enqueue(querySelection.prepareQueryString(queryInfo));
+                return toRowCountResult(method, 0);
+            }
+            return toRowCountResult(method, querySelection.execute(queryInfo, openConnection(shardIndex)));
+        }
+
+        Connection openConnection() {
+            return openConnection(0);
+        }
+
+        Connection openConnection(int shardIndex) {
+            return shardRouter.openConnection(shardIndex);
+        }
+
+        private OptionalInt getShardIndex(Method method, Object[] objects) {
+            if (!shardRouter.isSharded()) {
+                return OptionalInt.of(0);
             }
+            Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+            return IntStream.range(0, objects.length)
+                    .filter(index -> Arrays.stream(parameterAnnotations[index]).anyMatch(ShardKey.class::isInstance))
+                    .map(index -> shardRouter.route(objects[index]))
+                    .findFirst();
         }
 
+        <A extends Annotation> Optional<A> getAnnotation(Class<A> annotationClass, Method method) {
+            return Optional.ofNullable(method.getAnnotation(annotationClass))
+                    .or(() -> Optional.ofNullable(genericRepository.getAnnotation(annotationClass)));
+        }
+
+        private List<?> executeSingleFlight(Method method, QueryInfo queryInfo, Class<?> mappingClass, int shardIndex) throws Exception {
+            List<Object> inFlightKey = List.of(method, mappingClass, shardIndex, QuerySelection.SELECT.prepareQueryString(queryInfo));
+            CompletableFuture<List<?>> inFlightQuery = new CompletableFuture<>();
+            CompletableFuture<List<?>> existingQuery = inFlightQueries.putIfAbsent(inFlightKey, inFlightQuery);
+            if (Objects.nonNull(existingQuery)) {
+                LOGGER.debug("Join in-flight query of method: {}", method.getName());
+                try {
+                    return new ArrayList<>(existingQuery.join());
+                } catch (CompletionException exception) {
+                    throw exception.getCause() instanceof Exception cause ? cause : exception;
+                }
+            }
+            try {
+                List<?> result = List.copyOf(QuerySelection.SELECT.execute(queryInfo, openConnection(shardIndex), mappingClass));
+                inFlightQuery.complete(result);
+                return new ArrayList<>(result);
+            } catch (Throwable throwable) {
+                inFlightQuery.completeExceptionally(throwable);
+                throw throwable;
+            } finally {
+                inFlightQueries.remove(inFlightKey, inFlightQuery);
+            }
+        }
+
+        private WriteBehindBuffer newWriteBehindBuffer(Pair<WriteBehind, Integer> writeBehindShard) {
+            Database database = genericRepository.getAnnotation(Database.class);
+            WriteBehind writeBehind = writeBehindShard.getKey();
+            WriteErrorHandler errorHandler = (WriteErrorHandler) InstanceUtils.newInstance(writeBehind.errorHandler());
+            return new WriteBehindBuffer(writeBehind, shardRouter.getDatabaseUrl(writeBehindShard.getValue()),
+                    database, configuration, errorHandler);
+        }
+
+        QueryInfo createQueryInfo(Method method, Object[] objects) {
+            Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+            List<Pair<Param, Object>> paramValueMap = IntStream.range(0, objects.length).mapToObj(index -> {
+                Optional<Param> paramOptional = Arrays.stream(parameterAnnotations[index])
+                        .filter(Param.class::isInstance)
+                        .map(Param.class::cast)
+                        .findFirst();
+                return paramOptional.map(param -> Pair.of(param, objects[index])).orElse(null);
+            }).filter(Objects::nonNull).toList();
+
+
+            return QueryInfo.builder()
+                    .select(method.getAnnotation(Select.class))
+                    .from(method.getAnnotation(From.class))
+                    .where(method.getAnnotation(Where.class))
+                    .orderBy(method.getAnnotation(OrderBy.class))
+                    .insert(method.getAnnotation(Insert.class))
+                    .values(method.getAnnotation(Values.class))
+                    .update(method.getAnnotation(Update.class))
+                    .set(method.getAnnotation(Set.class))
+                    .delete(method.getAnnotation(Delete.class))
+                    .nativeQuery(method.getAnnotation(NativeQuery.class))
+                    .paramPairs(paramValueMap)
+                    .build();
+        }
+
+        static RowConsumer getRowConsumer(Object[] objects) {
+            return Arrays.stream(objects)
+                    .filter(RowConsumer.class::isInstance)
+                    .map(RowConsumer.class::cast)
+                    .findFirst().orElse(null);
+        }
+
+        /**
+         * The methods which return the number of affected or consumed rows can be declared as int, Integer (or its supertypes) or void
+         */
+        static void checkRowCountReturnType(Method method) {
+            Class<?> returnType = method.getReturnType();
+            ObjectUtils.checkThenThrow(returnType != int.class && returnType != void.class && !returnType.isAssignableFrom(Integer.class),
+                    "Method %s must return int, Integer or void instead of %s".formatted(method.getName(), returnType.getName()));
+        }
+
+        static Object toRowCountResult(Method method, int numberOfRows) {
+            return method.getReturnType() == void.class ? null : numberOfRows;
+        }
+
+        static Class<?> getMappingClass(Object[] objects) {
+            Class<?> mappingToClass = IntStream.range(0, objects.length)
+                    .filter(parameterIndex -> objects[parameterIndex] instanceof Class<?>)
+                    .mapToObj(parameterIndex -> (Class<?>) objects[parameterIndex])
+                    .findFirst().orElse(null);
+            ObjectUtils.checkThenThrow(Objects.isNull(mappingToClass), "SELECT statement must be mapped to a DTO class");
+            return mappingToClass;
+        }
+    }
+
     @Setter
     @Getter
-    private static class ConnectionManager {
+    static class ConnectionManager {
 
         private Connection connection;
 
         public Connection initialConnection(Database database, Properties configuration) {
+            return initialConnection(database.url(), database, configuration);
+        }
+
+        public Connection initialConnection(String url, Database database, Properties configuration) {
             if (Objects.isNull(connection)) {
-                String databaseURL = checkThenGetFromProperties(database.url(), configuration);
+                String databaseURL = checkThenGetFromProperties(url, configuration);
                 ObjectUtils.checkThenThrow(StringUtils.isEmpty(databaseURL), "Database URL cannot be empty");
 
                 LOGGER.info("Initial connection to database: {}", databaseURL);
@@ -0,0 +1,86 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.interfaces.AppException;
+import com.hvantran.sqlnative.interfaces.RowView;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A {@link RowView} which reads directly from the current row of a {@link ResultSet}
+ */
+class ResultSetRowView implements RowView {
+
+    private final ResultSet resultSet;
+
+    private final int columnCount;
+
+    private final Map<String, Integer> columnIndexes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    ResultSetRowView(ResultSet resultSet) throws SQLException {
+        this.resultSet = resultSet;
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        this.columnCount = metaData.getColumnCount();
+        for (int columnIndex = columnCount; columnIndex >= 1; columnIndex--) {
+            columnIndexes.put(metaData.getColumnLabel(columnIndex), columnIndex);
+        }
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @Override
+    public int findColumn(String columnLabel) {
+        Integer columnIndex = columnIndexes.get(columnLabel);
+        if (columnIndex == null) {
+            throw new AppException("Column %s does not exist in the result".formatted(columnLabel));
+        }
+        return columnIndex;
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        return resultSet.wasNull();
+    }
+
+    @Override
+    public long getLong(int columnIndex) throws SQLException {
+        return resultSet.getLong(columnIndex);
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+        return resultSet.getInt(columnIndex);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) throws SQLException {
+        return resultSet.getDouble(columnIndex);
+    }
+
+    @Override
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        return resultSet.getBoolean(columnIndex);
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        return resultSet.getString(columnIndex);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+        return resultSet.getBigDecimal(columnIndex);
+    }
+
+    @Override
+    public Object getObject(int columnIndex) throws SQLException {
+        return resultSet.getObject(columnIndex);
+    }
+}
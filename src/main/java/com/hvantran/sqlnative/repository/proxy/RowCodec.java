@@ -0,0 +1,333 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.interfaces.AppException;
+
+import java.io.*;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.*;
+import java.util.UUID;
+
+/**
+ * Encodes the column values of a row into a compact binary format and decodes them back as a read-only {@link ResultSet}.
+ * <p>
+ * Each column is written as a one byte type tag followed by its value, so a decoded value has the same type as the value
+ * returned by the driver. Values of other {@link Serializable} types are written with Java serialization,
+ * values which are not serializable cannot be encoded.
+ */
+class RowCodec {
+
+    private static final byte NULL = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte FLOAT = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte BIG_DECIMAL = 6;
+    private static final byte STRING = 7;
+    private static final byte BYTES = 8;
+    private static final byte TIMESTAMP = 9;
+    private static final byte DATE = 10;
+    private static final byte TIME = 11;
+    private static final byte SHORT = 12;
+    private static final byte BYTE = 13;
+    private static final byte BIG_INTEGER = 14;
+    private static final byte UUID_VALUE = 15;
+    private static final byte LOCAL_DATE = 16;
+    private static final byte LOCAL_TIME = 17;
+    private static final byte LOCAL_DATE_TIME = 18;
+    private static final byte OFFSET_DATE_TIME = 19;
+    private static final byte INSTANT = 20;
+    private static final byte SERIALIZED = 21;
+
+    private RowCodec() {
+
+    }
+
+    static void encode(ResultSet resultSet, int columnCount, DataOutputStream output) throws SQLException, IOException {
+        for (int columnIndex = 1; columnIndex <= columnCount; columnIndex++) {
+            encodeValue(resultSet.getObject(columnIndex), output);
+        }
+    }
+
+    static Object[] decode(ByteBuffer buffer, int position, int columnCount) {
+        Object[] values = new Object[columnCount];
+        for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+            byte tag = buffer.get(position++);
+            switch (tag) {
+                case NULL -> values[columnIndex] = null;
+                case BOOLEAN -> values[columnIndex] = buffer.get(position++) != 0;
+                case BYTE -> values[columnIndex] = buffer.get(position++);
+                case SHORT -> {
+                    values[columnIndex] = buffer.getShort(position);
+                    position += Short.BYTES;
+                }
+                case INT -> {
+                    values[columnIndex] = buffer.getInt(position);
+                    position += Integer.BYTES;
+                }
+                case LONG -> {
+                    values[columnIndex] = buffer.getLong(position);
+                    position += Long.BYTES;
+                }
+                case FLOAT -> {
+                    values[columnIndex] = buffer.getFloat(position);
+                    position += Float.BYTES;
+                }
+                case DOUBLE -> {
+                    values[columnIndex] = buffer.getDouble(position);
+                    position += Double.BYTES;
+                }
+                case TIMESTAMP -> {
+                    Timestamp timestamp = new Timestamp(buffer.getLong(position));
+                    timestamp.setNanos(buffer.getInt(position + Long.BYTES));
+                    values[columnIndex] = timestamp;
+                    position += Long.BYTES + Integer.BYTES;
+                }
+                case DATE -> {
+                    values[columnIndex] = new Date(buffer.getLong(position));
+                    position += Long.BYTES;
+                }
+                case TIME -> {
+                    values[columnIndex] = new Time(buffer.getLong(position));
+                    position += Long.BYTES;
+                }
+                case UUID_VALUE -> {
+                    values[columnIndex] = new UUID(buffer.getLong(position), buffer.getLong(position + Long.BYTES));
+                    position += 2 * Long.BYTES;
+                }
+                case LOCAL_DATE -> {
+                    values[columnIndex] = LocalDate.ofEpochDay(buffer.getLong(position));
+                    position += Long.BYTES;
+                }
+                case LOCAL_TIME -> {
+                    values[columnIndex] = LocalTime.ofNanoOfDay(buffer.getLong(position));
+                    position += Long.BYTES;
+                }
+                case LOCAL_DATE_TIME -> {
+                    values[columnIndex] = LocalDateTime.of(LocalDate.ofEpochDay(buffer.getLong(position)),
+                            LocalTime.ofNanoOfDay(buffer.getLong(position + Long.BYTES)));
+                    position += 2 * Long.BYTES;
+                }
+                case INSTANT -> {
+                    values[columnIndex] = Instant.ofEpochSecond(buffer.getLong(position), buffer.getInt(position + Long.BYTES));
+                    position += Long.BYTES + Integer.BYTES;
+                }
+                case OFFSET_DATE_TIME -> {
+                    Instant instant = Instant.ofEpochSecond(buffer.getLong(position), buffer.getInt(position + Long.BYTES));
+                    ZoneOffset offset = ZoneOffset.ofTotalSeconds(buffer.getInt(position + Long.BYTES + Integer.BYTES));
+                    values[columnIndex] = OffsetDateTime.ofInstant(instant, offset);
+                    position += Long.BYTES + 2 * Integer.BYTES;
+                }
+                case BIG_DECIMAL, BIG_INTEGER, STRING, BYTES, SERIALIZED -> {
+                    byte[] bytes = new byte[buffer.getInt(position)];
+                    buffer.get(position + Integer.BYTES, bytes);
+                    position += Integer.BYTES + bytes.length;
+                    values[columnIndex] = switch (tag) {
+                        case BIG_DECIMAL -> new BigDecimal(new String(bytes, StandardCharsets.UTF_8));
+                        case BIG_INTEGER -> new BigInteger(bytes);
+                        case STRING -> new String(bytes, StandardCharsets.UTF_8);
+                        case SERIALIZED -> deserialize(bytes);
+                        default -> bytes;
+                    };
+                }
+                default -> throw new AppException("Unknown column type tag: " + tag);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Create a read-only {@link ResultSet} positioned on the given row, it is used to map the row by {@link org.apache.commons.dbutils.BeanProcessor}
+     */
+    static ResultSet toResultSet(Object[] values, String[] columnLabels) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(RowCodec.class.getClassLoader(),
+                new Class[]{ResultSetMetaData.class}, (proxy, method, objects) -> switch (method.getName()) {
+                    case "getColumnCount" -> columnLabels.length;
+                    case "getColumnLabel", "getColumnName" -> columnLabels[(int) objects[0] - 1];
+                    default -> throw new SQLFeatureNotSupportedException(method.getName());
+                });
+        boolean[] wasNull = new boolean[1];
+        return (ResultSet) Proxy.newProxyInstance(RowCodec.class.getClassLoader(),
+                new Class[]{ResultSet.class}, (proxy, method, objects) -> {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return metaData;
+                        case "wasNull":
+                            return wasNull[0];
+                        case "close":
+                            return null;
+                        case "isClosed":
+                            return false;
+                        default:
+                            break;
+                    }
+                    if (objects == null || objects.length != 1 || !(objects[0] instanceof Integer columnIndex)) {
+                        throw new SQLFeatureNotSupportedException(method.getName());
+                    }
+                    Object value = values[columnIndex - 1];
+                    wasNull[0] = value == null;
+                    return convert(method.getName(), value);
+                });
+    }
+
+    private static void encodeValue(Object value, DataOutputStream output) throws SQLException, IOException {
+        if (value == null) {
+            output.writeByte(NULL);
+        } else if (value instanceof Boolean booleanValue) {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean(booleanValue);
+        } else if (value instanceof Byte byteValue) {
+            output.writeByte(BYTE);
+            output.writeByte(byteValue);
+        } else if (value instanceof Short shortValue) {
+            output.writeByte(SHORT);
+            output.writeShort(shortValue);
+        } else if (value instanceof Integer intValue) {
+            output.writeByte(INT);
+            output.writeInt(intValue);
+        } else if (value instanceof Long longValue) {
+            output.writeByte(LONG);
+            output.writeLong(longValue);
+        } else if (value instanceof Float floatValue) {
+            output.writeByte(FLOAT);
+            output.writeFloat(floatValue);
+        } else if (value instanceof Double doubleValue) {
+            output.writeByte(DOUBLE);
+            output.writeDouble(doubleValue);
+        } else if (value instanceof String stringValue) {
+            writeBytes(STRING, stringValue.getBytes(StandardCharsets.UTF_8), output);
+        } else if (value instanceof Timestamp timestamp) {
+            output.writeByte(TIMESTAMP);
+            output.writeLong(timestamp.getTime());
+            output.writeInt(timestamp.getNanos());
+        } else if (value instanceof Date date) {
+            output.writeByte(DATE);
+            output.writeLong(date.getTime());
+        } else if (value instanceof Time time) {
+            output.writeByte(TIME);
+            output.writeLong(time.getTime());
+        } else if (value instanceof BigDecimal bigDecimal) {
+            writeBytes(BIG_DECIMAL, bigDecimal.toString().getBytes(StandardCharsets.UTF_8), output);
+        } else if (value instanceof BigInteger bigInteger) {
+            writeBytes(BIG_INTEGER, bigInteger.toByteArray(), output);
+        } else if (value instanceof byte[] bytes) {
+            writeBytes(BYTES, bytes, output);
+        } else if (value instanceof UUID uuid) {
+            output.writeByte(UUID_VALUE);
+            output.writeLong(uuid.getMostSignificantBits());
+            output.writeLong(uuid.getLeastSignificantBits());
+        } else if (value instanceof LocalDate localDate) {
+            output.writeByte(LOCAL_DATE);
+            output.writeLong(localDate.toEpochDay());
+        } else if (value instanceof LocalTime localTime) {
+            output.writeByte(LOCAL_TIME);
+            output.writeLong(localTime.toNanoOfDay());
+        } else if (value instanceof LocalDateTime localDateTime) {
+            output.writeByte(LOCAL_DATE_TIME);
+            output.writeLong(localDateTime.toLocalDate().toEpochDay());
+            output.writeLong(localDateTime.toLocalTime().toNanoOfDay());
+        } else if (value instanceof Instant instant) {
+            output.writeByte(INSTANT);
+            output.writeLong(instant.getEpochSecond());
+            output.writeInt(instant.getNano());
+        } else if (value instanceof OffsetDateTime offsetDateTime) {
+            output.writeByte(OFFSET_DATE_TIME);
+            output.writeLong(offsetDateTime.toEpochSecond());
+            output.writeInt(offsetDateTime.getNano());
+            output.writeInt(offsetDateTime.getOffset().getTotalSeconds());
+        } else if (value instanceof Blob blob) {
+            writeBytes(BYTES, blob.getBytes(1, (int) blob.length()), output);
+        } else if (value instanceof Clob clob) {
+            writeBytes(STRING, clob.getSubString(1, (int) clob.length()).getBytes(StandardCharsets.UTF_8), output);
+        } else if (value instanceof Serializable serializable) {
+            writeBytes(SERIALIZED, serialize(serializable), output);
+        } else {
+            throw new AppException("Cannot spill column value of type %s to disk, it is not serializable".formatted(value.getClass().getName()));
+        }
+    }
+
+    private static void writeBytes(byte tag, byte[] bytes, DataOutputStream output) throws IOException {
+        output.writeByte(tag);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] serialize(Serializable value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+            objectOutput.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objectInput.readObject();
+        } catch (IOException | ClassNotFoundException exception) {
+            throw new AppException("Cannot read spilled column value", exception);
+        }
+    }
+
+    private static Object convert(String getterName, Object value) throws SQLException {
+        return switch (getterName) {
+            case "getObject" -> value;
+            case "getString" -> value == null ? null : String.valueOf(value);
+            case "getBoolean" -> value != null && (value instanceof Boolean booleanValue ? booleanValue
+                    : value instanceof Number number ? number.intValue() != 0 : Boolean.parseBoolean(String.valueOf(value)));
+            case "getByte" -> toNumber(value).byteValue();
+            case "getShort" -> toNumber(value).shortValue();
+            case "getInt" -> toNumber(value).intValue();
+            case "getLong" -> toNumber(value).longValue();
+            case "getFloat" -> toNumber(value).floatValue();
+            case "getDouble" -> toNumber(value).doubleValue();
+            case "getBigDecimal" -> value == null || value instanceof BigDecimal ? value : new BigDecimal(String.valueOf(value));
+            case "getBytes" -> value == null || value instanceof byte[] ? value : String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+            case "getTimestamp" -> toTimestamp(value);
+            case "getDate" -> value == null || value instanceof Date ? value
+                    : value instanceof LocalDate localDate ? Date.valueOf(localDate) : new Date(toTimestamp(value).getTime());
+            case "getTime" -> value == null || value instanceof Time ? value
+                    : value instanceof LocalTime localTime ? Time.valueOf(localTime) : new Time(toTimestamp(value).getTime());
+            default -> throw new SQLFeatureNotSupportedException(getterName);
+        };
+    }
+
+    private static Timestamp toTimestamp(Object value) throws SQLException {
+        if (value == null || value instanceof Timestamp) {
+            return (Timestamp) value;
+        }
+        if (value instanceof java.util.Date date) {
+            return new Timestamp(date.getTime());
+        }
+        if (value instanceof LocalDateTime localDateTime) {
+            return Timestamp.valueOf(localDateTime);
+        }
+        if (value instanceof LocalDate localDate) {
+            return Timestamp.valueOf(localDate.atStartOfDay());
+        }
+        if (value instanceof Instant instant) {
+            return Timestamp.from(instant);
+        }
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            return Timestamp.from(offsetDateTime.toInstant());
+        }
+        throw new SQLException("Cannot convert %s to java.sql.Timestamp".formatted(value.getClass().getName()));
+    }
+
+    private static Number toNumber(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number number) {
+            return number;
+        }
+        if (value instanceof Boolean booleanValue) {
+            return booleanValue ? 1 : 0;
+        }
+        return new BigDecimal(String.valueOf(value).trim());
+    }
+}
@@ -0,0 +1,116 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.annotations.OrderBy;
+import com.hvantran.sqlnative.interfaces.AppException;
+import com.hvantran.sqlnative.interfaces.CheckedFunction;
+import com.hvantran.sqlnative.interfaces.CheckedSupplier;
+import com.hvantran.sqlnative.utils.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Merges the results of a query which is executed on all the shards of a repository
+ */
+class ShardResultMerger {
+
+    private static final Pattern ORDER_BY_COLUMN_PATTERN = Pattern.compile("([\\w$.\"`]+)(?:\\s+(ASC|DESC))?", Pattern.CASE_INSENSITIVE);
+
+    private ShardResultMerger() {
+
+    }
+
+    /**
+     * Merge the results of the shards: lists are concatenated, or merged by the given row comparator if it is not null,
+     * row counts are summed
+     */
+    static Object merge(List<Object> shardResults, Comparator<Object> rowComparator) {
+        if (shardResults.stream().allMatch(Objects::isNull)) {
+            return null;
+        }
+        if (shardResults.stream().allMatch(Integer.class::isInstance)) {
+            return shardResults.stream().mapToInt(Integer.class::cast).sum();
+        }
+        List<List<Object>> shardRows = shardResults.stream().map(ShardResultMerger::toList).toList();
+        if (Objects.isNull(rowComparator)) {
+            List<Object> rows = new ArrayList<>();
+            shardRows.forEach(rows::addAll);
+            return rows;
+        }
+        return mergeSorted(shardRows, rowComparator);
+    }
+
+    static <T> List<T> mergeSorted(List<List<T>> sortedLists, Comparator<? super T> comparator) {
+        int[] cursors = new int[sortedLists.size()];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()), (left, right) ->
+                comparator.compare(sortedLists.get(left).get(cursors[left]), sortedLists.get(right).get(cursors[right])));
+        int numberOfRows = 0;
+        for (int listIndex = 0; listIndex < sortedLists.size(); listIndex++) {
+            numberOfRows += sortedLists.get(listIndex).size();
+            if (!sortedLists.get(listIndex).isEmpty()) {
+                heads.add(listIndex);
+            }
+        }
+        List<T> rows = new ArrayList<>(numberOfRows);
+        while (!heads.isEmpty()) {
+            int listIndex = heads.poll();
+            rows.add(sortedLists.get(listIndex).get(cursors[listIndex]++));
+            if (cursors[listIndex] < sortedLists.get(listIndex).size()) {
+                heads.add(listIndex);
+            }
+        }
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> toList(Object shardResult) {
+        if (shardResult instanceof List<?> list) {
+            return (List<Object>) list;
+        }
+        throw new AppException("Cannot merge shard result of type " + shardResult.getClass().getName());
+    }
+
+    /**
+     * Build a comparator from the {@link OrderBy} clause, e.g. "application ASC, t.id DESC".
+     * Each column is matched to a property of the DTO class by name, ignoring case and underscores.
+     * <p>
+     * Only plain columns with an optional ASC/DESC direction are supported, expressions and NULLS FIRST/LAST are rejected.
+     * The values are compared by their natural ordering and NULL is the smallest value, so the merged order is only the
+     * database order when the database sorts the columns the same way, e.g. numbers, dates or strings with a binary collation
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Comparator<Object> getComparator(OrderBy orderBy, Class<?> mappingClass) {
+        CheckedSupplier<PropertyDescriptor[]> propertySupplier = () -> Introspector.getBeanInfo(mappingClass).getPropertyDescriptors();
+        PropertyDescriptor[] propertyDescriptors = propertySupplier.get();
+        Comparator<Object> comparator = null;
+        for (String orderByColumn : orderBy.value().split(",")) {
+            Matcher matcher = ORDER_BY_COLUMN_PATTERN.matcher(orderByColumn.trim());
+            ObjectUtils.checkThenThrow(!matcher.matches(), ("Cannot merge shard results, ORDER BY %s is not supported, " +
+                    "only column names with optional ASC/DESC direction are supported").formatted(orderByColumn.trim()));
+            String columnName = normalize(StringUtils.substringAfterLast("." + matcher.group(1), "."));
+            boolean isDescending = "DESC".equalsIgnoreCase(matcher.group(2));
+
+            Method readMethod = Arrays.stream(propertyDescriptors)
+                    .filter(propertyDescriptor -> Objects.nonNull(propertyDescriptor.getReadMethod()))
+                    .filter(propertyDescriptor -> normalize(propertyDescriptor.getName()).equals(columnName))
+                    .map(PropertyDescriptor::getReadMethod)
+                    .findFirst()
+                    .orElseThrow(() -> new AppException("Cannot merge shard results, ORDER BY column %s is not mapped to %s"
+                            .formatted(orderByColumn.trim(), mappingClass.getName())));
+            CheckedFunction<Object, Comparable> valueFunction = row -> (Comparable) readMethod.invoke(row);
+            Comparator<Object> columnComparator = Comparator.comparing(valueFunction, Comparator.nullsFirst(Comparator.naturalOrder()));
+            columnComparator = isDescending ? columnComparator.reversed() : columnComparator;
+            comparator = Objects.isNull(comparator) ? columnComparator : comparator.thenComparing(columnComparator);
+        }
+        return comparator;
+    }
+
+    private static String normalize(String name) {
+        return StringUtils.remove(StringUtils.remove(StringUtils.remove(name, '_'), '"'), '`').toLowerCase(Locale.ROOT);
+    }
+}
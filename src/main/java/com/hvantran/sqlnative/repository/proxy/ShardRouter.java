@@ -0,0 +1,157 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.annotations.Database;
+import com.hvantran.sqlnative.interfaces.CheckedSupplier;
+import com.hvantran.sqlnative.interfaces.ShardingStrategy;
+import com.hvantran.sqlnative.utils.InstanceUtils;
+import com.hvantran.sqlnative.utils.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
+/**
+ * Holds the connections of a repository, one for each shard. A repository which is not sharded has only one shard
+ */
+class ShardRouter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardRouter.class);
+
+    private final Database database;
+
+    private final Properties configuration;
+
+    private final List<String> databaseUrls;
+
+    private final List<RepoProxyFactory.ConnectionManager> connectionManagers = new ArrayList<>();
+
+    private final ShardingStrategy shardingStrategy;
+
+    private ExecutorService executorService;
+
+    private boolean closed;
+
+    ShardRouter(Database database, Properties configuration) {
+        this.database = database;
+        this.configuration = configuration;
+        this.databaseUrls = database.shardUrls().length > 0 ? List.of(database.shardUrls()) : List.of(database.url());
+        this.databaseUrls.forEach(databaseUrl -> connectionManagers.add(new RepoProxyFactory.ConnectionManager()));
+        this.shardingStrategy = (ShardingStrategy) InstanceUtils.newInstance(database.shardingStrategy());
+    }
+
+    boolean isSharded() {
+        return databaseUrls.size() > 1;
+    }
+
+    int getNumberOfShards() {
+        return databaseUrls.size();
+    }
+
+    String getDatabaseUrl(int shardIndex) {
+        return databaseUrls.get(shardIndex);
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    int route(Object shardKey) {
+        ObjectUtils.checkThenThrow(Objects.isNull(shardKey), "Shard key cannot be NULL");
+        int shardIndex = shardingStrategy.getShardIndex(shardKey, getNumberOfShards());
+        ObjectUtils.checkThenThrow(shardIndex < 0 || shardIndex >= getNumberOfShards(),
+                "Sharding strategy returns invalid shard index: " + shardIndex);
+        LOGGER.debug("Route shard key {} to shard {}", shardKey, shardIndex);
+        return shardIndex;
+    }
+
+    Connection openConnection(int shardIndex) {
+        RepoProxyFactory.ConnectionManager connectionManager = connectionManagers.get(shardIndex);
+        synchronized (connectionManager) {
+            return connectionManager.initialConnection(getDatabaseUrl(shardIndex), database, configuration);
+        }
+    }
+
+    /**
+     * Execute the given call on all the shards concurrently
+     *
+     * @return the results in shard order
+     */
+    <R> List<R> scatter(IntFunction<Callable<R>> shardCall) throws Throwable {
+        ExecutorService shardExecutor = getExecutorService();
+        if (Objects.isNull(shardExecutor)) {
+            // The repository is closed, the calls are executed by the caller and fail on the closed connections
+            List<R> shardResults = new ArrayList<>(getNumberOfShards());
+            for (int shardIndex = 0; shardIndex < getNumberOfShards(); shardIndex++) {
+                shardResults.add(shardCall.apply(shardIndex).call());
+            }
+            return shardResults;
+        }
+        List<CompletableFuture<R>> shardResults = new ArrayList<>(getNumberOfShards());
+        for (int shardIndex = 0; shardIndex < getNumberOfShards(); shardIndex++) {
+            Callable<R> callable = shardCall.apply(shardIndex);
+            shardResults.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return callable.call();
+                } catch (Exception exception) {
+                    throw new CompletionException(exception);
+                }
+            }, shardExecutor));
+        }
+        try {
+            return shardResults.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    boolean hasConnection() {
+        return connectionManagers.stream().map(RepoProxyFactory.ConnectionManager::getConnection).anyMatch(Objects::nonNull);
+    }
+
+    /**
+     * Close all the open connections and stop the shard workers. The connections are kept, so the repository is not reconnected
+     * after closing and closing it again is harmless
+     */
+    void close() {
+        shutdownExecutorService();
+        for (RepoProxyFactory.ConnectionManager connectionManager : connectionManagers) {
+            Connection connection = connectionManager.getConnection();
+            if (Objects.nonNull(connection)) {
+                CheckedSupplier<Connection> closeConnection = () -> {
+                    connection.close();
+                    return connection;
+                };
+                closeConnection.get();
+            }
+        }
+    }
+
+    private synchronized ExecutorService getExecutorService() {
+        if (Objects.isNull(executorService) && !closed) {
+            executorService = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "shard-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executorService;
+    }
+
+    private synchronized void shutdownExecutorService() {
+        closed = true;
+        if (Objects.nonNull(executorService)) {
+            executorService.shutdown();
+            executorService = null;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.interfaces.AppException;
+import com.hvantran.sqlnative.utils.ObjectUtils;
+import org.apache.commons.dbutils.BeanProcessor;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link ResultSetHandler} which maps the first rows to DTO instances and writes the remaining rows to a temporary file
+ */
+class SpillableBeanListHandler<T> implements ResultSetHandler<List<T>> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpillableBeanListHandler.class);
+
+    private final Class<? extends T> klass;
+
+    private final int inMemoryRows;
+
+    private final BeanProcessor beanProcessor = new BeanProcessor();
+
+    SpillableBeanListHandler(Class<? extends T> klass, int inMemoryRows) {
+        ObjectUtils.checkThenThrow(inMemoryRows < 0, "Number of in-memory rows cannot be negative");
+        this.klass = klass;
+        this.inMemoryRows = inMemoryRows;
+    }
+
+    @Override
+    public List<T> handle(ResultSet resultSet) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        boolean hasNext = resultSet.next();
+        while (hasNext && rows.size() < inMemoryRows) {
+            rows.add(beanProcessor.toBean(resultSet, klass));
+            hasNext = resultSet.next();
+        }
+        if (!hasNext) {
+            return SpillableList.inMemory(rows, klass);
+        }
+
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        String[] columnLabels = new String[metaData.getColumnCount()];
+        for (int columnIndex = 1; columnIndex <= columnLabels.length; columnIndex++) {
+            String columnLabel = metaData.getColumnLabel(columnIndex);
+            columnLabels[columnIndex - 1] = columnLabel == null || columnLabel.isEmpty() ? metaData.getColumnName(columnIndex) : columnLabel;
+        }
+
+        Path spillFile = null;
+        try {
+            spillFile = Files.createTempFile("native-db-client-", ".rows");
+            int[] rowOffsets = new int[1024];
+            int numberOfSpilledRows = 0;
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile)))) {
+                while (hasNext) {
+                    ObjectUtils.checkThenThrow(output.size() == Integer.MAX_VALUE, "Spilled rows cannot exceed 2GB");
+                    if (numberOfSpilledRows == rowOffsets.length) {
+                        rowOffsets = Arrays.copyOf(rowOffsets, rowOffsets.length * 2);
+                    }
+                    rowOffsets[numberOfSpilledRows++] = output.size();
+                    RowCodec.encode(resultSet, columnLabels.length, output);
+                    hasNext = resultSet.next();
+                }
+                ObjectUtils.checkThenThrow(output.size() == Integer.MAX_VALUE, "Spilled rows cannot exceed 2GB");
+            }
+            LOGGER.info("Spilled {} rows to {}", numberOfSpilledRows, spillFile);
+            try (FileChannel fileChannel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+                MappedByteBuffer spilledRows = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+                SpillableList<T> spillableList = new SpillableList<>(rows, klass, columnLabels, rowOffsets, numberOfSpilledRows, spillFile, spilledRows);
+                // Map the first spilled row, so the columns which cannot be mapped back fail here instead of when the list is read
+                spillableList.get(rows.size());
+                return spillableList;
+            }
+        } catch (IOException exception) {
+            deleteQuietly(spillFile);
+            throw new AppException("Cannot spill rows to disk", exception);
+        } catch (SQLException | RuntimeException exception) {
+            deleteQuietly(spillFile);
+            throw exception;
+        }
+    }
+
+    private void deleteQuietly(Path spillFile) {
+        if (spillFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(spillFile);
+        } catch (IOException exception) {
+            LOGGER.warn("Cannot delete spill file {}", spillFile, exception);
+        }
+    }
+}
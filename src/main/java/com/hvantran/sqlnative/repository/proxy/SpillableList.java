@@ -0,0 +1,107 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.interfaces.CheckedSupplier;
+import com.hvantran.sqlnative.utils.ObjectUtils;
+import org.apache.commons.dbutils.BeanProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A read-only result list of a {@link com.hvantran.sqlnative.annotations.SpillToDisk} SELECT method.
+ * <p>
+ * The first rows are kept in memory, the remaining rows are stored in a temporary memory-mapped file and mapped
+ * to a new DTO instance on each access. The temporary file is deleted when the list is closed, or when the list
+ * is garbage collected if it is not closed.
+ */
+public class SpillableList<T> extends AbstractList<T> implements RandomAccess, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpillableList.class);
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final List<T> inMemoryRows;
+
+    private final Class<? extends T> klass;
+
+    private final String[] columnLabels;
+
+    private final int[] rowOffsets;
+
+    private final int numberOfSpilledRows;
+
+    private final Cleaner.Cleanable spillFileCleanable;
+
+    private final BeanProcessor beanProcessor = new BeanProcessor();
+
+    private volatile MappedByteBuffer spilledRows;
+
+    SpillableList(List<T> inMemoryRows, Class<? extends T> klass, String[] columnLabels,
+                  int[] rowOffsets, int numberOfSpilledRows, Path spillFile, MappedByteBuffer spilledRows) {
+        this.inMemoryRows = inMemoryRows;
+        this.klass = klass;
+        this.columnLabels = columnLabels;
+        this.rowOffsets = rowOffsets;
+        this.numberOfSpilledRows = numberOfSpilledRows;
+        this.spillFileCleanable = Objects.isNull(spillFile) ? null : CLEANER.register(this, new SpillFileDeleter(spillFile));
+        this.spilledRows = spilledRows;
+    }
+
+    static <T> SpillableList<T> inMemory(List<T> rows, Class<? extends T> klass) {
+        return new SpillableList<>(rows, klass, new String[0], new int[0], 0, null, null);
+    }
+
+    @Override
+    public T get(int index) {
+        Objects.checkIndex(index, size());
+        if (index < inMemoryRows.size()) {
+            return inMemoryRows.get(index);
+        }
+        MappedByteBuffer buffer = spilledRows;
+        ObjectUtils.checkThenThrow(Objects.isNull(buffer), "Cannot read spilled rows because the list is closed");
+        Object[] values = RowCodec.decode(buffer, rowOffsets[index - inMemoryRows.size()], columnLabels.length);
+        CheckedSupplier<T> beanSupplier = () -> beanProcessor.toBean(RowCodec.toResultSet(values, columnLabels), klass);
+        return beanSupplier.get();
+    }
+
+    @Override
+    public int size() {
+        return inMemoryRows.size() + numberOfSpilledRows;
+    }
+
+    public boolean isSpilled() {
+        return numberOfSpilledRows > 0;
+    }
+
+    @Override
+    public void close() {
+        spilledRows = null;
+        if (Objects.nonNull(spillFileCleanable)) {
+            spillFileCleanable.clean();
+        }
+    }
+
+    /**
+     * Deletes the spill file, it must not refer to the list, otherwise the list is never garbage collected
+     */
+    private record SpillFileDeleter(Path spillFile) implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                Files.deleteIfExists(spillFile);
+            } catch (IOException exception) {
+                LOGGER.warn("Cannot delete spill file {}", spillFile, exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.annotations.Database;
+import com.hvantran.sqlnative.annotations.WriteBehind;
+import com.hvantran.sqlnative.interfaces.AppException;
+import com.hvantran.sqlnative.interfaces.CheckedSupplier;
+import com.hvantran.sqlnative.interfaces.WriteErrorHandler;
+import com.hvantran.sqlnative.utils.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded buffer of write queries which is flushed by a background thread when it reaches the batch size
+ * or the flush interval elapses. The buffer uses its own connection, so flushing does not interfere with the repository connection.
+ * <p>
+ * The queries are executed in the order they are enqueued, a flush polls and executes the queries while holding the buffer lock,
+ * so a caller running its query on overflow executes the queued queries first
+ */
+class WriteBehindBuffer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final WriteBehind writeBehind;
+
+    private final RepoProxyFactory.ConnectionManager connectionManager = new RepoProxyFactory.ConnectionManager();
+
+    private final String databaseUrl;
+
+    private final Database database;
+
+    private final Properties configuration;
+
+    private final WriteErrorHandler errorHandler;
+
+    private final ConcurrentLinkedQueue<String> queries = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final ScheduledExecutorService flusher;
+
+    private volatile boolean closed;
+
+    private boolean connectionClosed;
+
+    WriteBehindBuffer(WriteBehind writeBehind, String databaseUrl, Database database, Properties configuration, WriteErrorHandler errorHandler) {
+        ObjectUtils.checkThenThrow(writeBehind.capacity() <= 0, "Write-behind capacity must be greater than 0");
+        ObjectUtils.checkThenThrow(writeBehind.batchSize() <= 0, "Write-behind batch size must be greater than 0");
+        ObjectUtils.checkThenThrow(writeBehind.flushIntervalMillis() <= 0, "Write-behind flush interval must be greater than 0");
+        ObjectUtils.checkThenThrow(writeBehind.blockTimeoutMillis() < 0, "Write-behind block timeout cannot be negative");
+        this.writeBehind = writeBehind;
+        this.databaseUrl = databaseUrl;
+        this.database = database;
+        this.configuration = configuration;
+        this.errorHandler = errorHandler;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, writeBehind.flushIntervalMillis(),
+                writeBehind.flushIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void enqueue(String query) {
+        ObjectUtils.checkThenThrow(closed, "Write-behind buffer is closed");
+        long blockDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(writeBehind.blockTimeoutMillis());
+        while (!tryReserve()) {
+            switch (writeBehind.overflowPolicy()) {
+                case DROP -> {
+                    LOGGER.warn("Write-behind buffer is full, drop query: {}", query);
+                    reportError(List.of(query), new AppException("Write-behind buffer is full, the query is dropped"));
+                    return;
+                }
+                case CALLER_RUNS -> {
+                    synchronized (this) {
+                        flush();
+                        executeBatch(List.of(query));
+                    }
+                    return;
+                }
+                case BLOCK -> {
+                    ObjectUtils.checkThenThrow(closed, "Write-behind buffer is closed");
+                    ObjectUtils.checkThenThrow(System.nanoTime() - blockDeadline >= 0,
+                            "Write-behind buffer is still full after %d ms".formatted(writeBehind.blockTimeoutMillis()));
+                    requestFlush();
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+            }
+        }
+        queries.offer(query);
+        if (closed) {
+            flush();
+        } else if (size.get() >= writeBehind.batchSize()) {
+            requestFlush();
+        }
+    }
+
+    void close() {
+        closed = true;
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(writeBehind.flushIntervalMillis(), TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Write-behind flusher did not terminate in time");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        closeConnection();
+        LOGGER.info("Write-behind buffer is closed");
+    }
+
+    private boolean tryReserve() {
+        int currentSize = size.get();
+        while (currentSize < writeBehind.capacity()) {
+            if (size.compareAndSet(currentSize, currentSize + 1)) {
+                return true;
+            }
+            currentSize = size.get();
+        }
+        return false;
+    }
+
+    private void requestFlush() {
+        if (!flusher.isShutdown() && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException exception) {
+                LOGGER.debug("Write-behind flusher is shut down, remaining queries are flushed on close");
+            }
+        }
+    }
+
+    private synchronized void flush() {
+        flushRequested.set(false);
+        List<String> batch = new ArrayList<>(writeBehind.batchSize());
+        String query;
+        while ((query = queries.poll()) != null) {
+            size.decrementAndGet();
+            batch.add(query);
+            if (batch.size() == writeBehind.batchSize()) {
+                executeBatch(batch);
+                batch = new ArrayList<>(writeBehind.batchSize());
+            }
+        }
+        if (!batch.isEmpty()) {
+            executeBatch(batch);
+        }
+    }
+
+    private synchronized void closeConnection() {
+        connectionClosed = true;
+        Connection connection = connectionManager.getConnection();
+        if (Objects.nonNull(connection)) {
+            CheckedSupplier<Connection> closeConnection = () -> {
+                connection.close();
+                return connection;
+            };
+            closeConnection.get();
+        }
+    }
+
+    private synchronized void executeBatch(List<String> batch) {
+        if (connectionClosed) {
+            reportError(batch, new AppException("Write-behind buffer is closed, the queries are not executed"));
+            return;
+        }
+        LOGGER.debug("Flushing {} write-behind queries", batch.size());
+        try (Statement statement = connectionManager.initialConnection(databaseUrl, database, configuration).createStatement()) {
+            for (String query : batch) {
+                statement.addBatch(query);
+            }
+            statement.executeBatch();
+        } catch (BatchUpdateException exception) {
+            resetConnection();
+            reportError(getFailedQueries(batch, exception.getUpdateCounts()), exception);
+        } catch (SQLException | RuntimeException exception) {
+            resetConnection();
+            reportError(batch, exception);
+        }
+    }
+
+    /**
+     * Drop the connection after a failed batch, so the next batch opens a new connection if the current one is broken
+     */
+    private void resetConnection() {
+        Connection connection = connectionManager.getConnection();
+        connectionManager.setConnection(null);
+        if (Objects.nonNull(connection)) {
+            try {
+                connection.close();
+            } catch (SQLException exception) {
+                LOGGER.debug("Cannot close write-behind connection", exception);
+            }
+        }
+    }
+
+    /**
+     * The driver either stops at the first failed query or continues and marks the failed queries with {@link Statement#EXECUTE_FAILED},
+     * the queries without update count are not executed. The whole batch is failed if the driver does not mark any failed query
+     */
+    private List<String> getFailedQueries(List<String> batch, int[] updateCounts) {
+        List<String> failedQueries = new ArrayList<>();
+        for (int queryIndex = 0; queryIndex < batch.size(); queryIndex++) {
+            if (updateCounts == null || queryIndex >= updateCounts.length || updateCounts[queryIndex] == Statement.EXECUTE_FAILED) {
+                failedQueries.add(batch.get(queryIndex));
+            }
+        }
+        return failedQueries.isEmpty() ? batch : failedQueries;
+    }
+
+    private void reportError(List<String> failedQueries, Exception exception) {
+        try {
+            errorHandler.onError(failedQueries, exception);
+        } catch (RuntimeException handlerException) {
+            LOGGER.error("Write-behind error handler failed", handlerException);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.interfaces.AppException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashShardingStrategyTest {
+
+    private enum Region { EU, US }
+
+    private final HashShardingStrategy shardingStrategy = new HashShardingStrategy();
+
+    @Test
+    void integralKeysAreRoutedToTheSameShardWhateverTheirType() {
+        for (long key = -1000; key <= 1000; key++) {
+            int shardIndex = shardingStrategy.getShardIndex(key, 4);
+            assertEquals(shardIndex, shardingStrategy.getShardIndex((int) key, 4));
+            assertEquals(shardIndex, shardingStrategy.getShardIndex(BigInteger.valueOf(key), 4));
+            assertEquals(shardIndex, shardingStrategy.getShardIndex(BigDecimal.valueOf(key).setScale(2), 4));
+            if (key >= Short.MIN_VALUE && key <= Short.MAX_VALUE) {
+                assertEquals(shardIndex, shardingStrategy.getShardIndex((short) key, 4));
+            }
+        }
+    }
+
+    @Test
+    void shardIndexIsInRange() {
+        for (Object key : new Object[]{Integer.MIN_VALUE, Long.MAX_VALUE, -0.5d, "key", UUID.randomUUID(), Region.US}) {
+            int shardIndex = shardingStrategy.getShardIndex(key, 3);
+            assertTrue(shardIndex >= 0 && shardIndex < 3, String.valueOf(key));
+        }
+    }
+
+    @Test
+    void enumKeysAreRoutedByName() {
+        assertEquals(shardingStrategy.getShardIndex("EU", 7), shardingStrategy.getShardIndex(Region.EU, 7));
+        assertEquals(shardingStrategy.getShardIndex("US", 7), shardingStrategy.getShardIndex(Region.US, 7));
+    }
+
+    @Test
+    void keysWithoutValueBasedHashCodeAreRejected() {
+        assertThrows(AppException.class, () -> shardingStrategy.getShardIndex(new Object(), 2));
+        assertThrows(AppException.class, () -> shardingStrategy.getShardIndex(new int[]{1}, 2));
+    }
+}
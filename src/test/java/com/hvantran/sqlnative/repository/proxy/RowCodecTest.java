@@ -0,0 +1,128 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.interfaces.AppException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowCodecTest {
+
+    static Stream<Object> columnValues() {
+        Timestamp timestamp = Timestamp.valueOf("2023-04-05 06:07:08.123456789");
+        return Stream.of(
+                true,
+                (byte) -7,
+                (short) 1234,
+                -123456,
+                Long.MIN_VALUE,
+                1.5f,
+                -2.25d,
+                new BigDecimal("12345678901234567890.000123"),
+                "native-db-client é中",
+                "",
+                new byte[]{1, 2, 3},
+                timestamp,
+                Date.valueOf("2023-04-05"),
+                Time.valueOf("06:07:08"),
+                new BigInteger("-123456789012345678901234567890"),
+                UUID.fromString("0f8fad5b-d9cb-469f-a165-70867728950e"),
+                LocalDate.of(2023, 4, 5),
+                LocalTime.of(6, 7, 8, 9),
+                LocalDateTime.of(2023, 4, 5, 6, 7, 8, 9),
+                OffsetDateTime.of(2023, 4, 5, 6, 7, 8, 9, ZoneOffset.ofHours(-5)),
+                Instant.ofEpochSecond(1680674828L, 123456789),
+                new ArrayList<>(List.of("serialized", "value")));
+    }
+
+    @ParameterizedTest
+    @MethodSource("columnValues")
+    void decodeReturnsEncodedValue(Object value) throws Exception {
+        Object decodedValue = roundTrip(value);
+
+        if (value instanceof byte[] bytes) {
+            assertArrayEquals(bytes, (byte[]) decodedValue);
+        } else {
+            assertEquals(value, decodedValue);
+            assertEquals(value.getClass(), decodedValue.getClass());
+        }
+    }
+
+    @Test
+    void decodeReadsColumnsFromPosition() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(42);
+        RowCodec.encode(RowCodec.toResultSet(new Object[]{null, "a", 1L}, new String[]{"x", "y", "z"}), 3, output);
+
+        Object[] values = RowCodec.decode(ByteBuffer.wrap(bytes.toByteArray()), Integer.BYTES, 3);
+
+        assertArrayEquals(new Object[]{null, "a", 1L}, values);
+    }
+
+    @Test
+    void encodeRejectsValueWhichIsNotSerializable() {
+        ResultSet resultSet = RowCodec.toResultSet(new Object[]{new Object()}, new String[]{"value"});
+        DataOutputStream output = new DataOutputStream(new ByteArrayOutputStream());
+
+        AppException exception = assertThrows(AppException.class, () -> RowCodec.encode(resultSet, 1, output));
+
+        assertTrue(exception.getMessage().contains("java.lang.Object"));
+    }
+
+    @Test
+    void resultSetConvertsJavaTimeValuesToJdbcTypes() throws Exception {
+        LocalDateTime localDateTime = LocalDateTime.of(2023, 4, 5, 6, 7, 8);
+        Instant instant = Instant.ofEpochSecond(1680674828L);
+        ResultSet resultSet = RowCodec.toResultSet(new Object[]{localDateTime, LocalDate.of(2023, 4, 5), LocalTime.of(6, 7, 8), instant},
+                new String[]{"a", "b", "c", "d"});
+
+        assertEquals(Timestamp.valueOf(localDateTime), resultSet.getTimestamp(1));
+        assertEquals(Date.valueOf("2023-04-05"), resultSet.getDate(2));
+        assertEquals(Time.valueOf("06:07:08"), resultSet.getTime(3));
+        assertEquals(Timestamp.from(instant), resultSet.getTimestamp(4));
+    }
+
+    @Test
+    void resultSetConvertsValuesForGetters() throws Exception {
+        ResultSet resultSet = RowCodec.toResultSet(new Object[]{12L, null, "34", UUID.randomUUID()}, new String[]{"a", "b", "c", "d"});
+
+        assertEquals(12, resultSet.getInt(1));
+        assertEquals("12", resultSet.getString(1));
+        assertEquals(0L, resultSet.getLong(2));
+        assertTrue(resultSet.wasNull());
+        assertEquals(34, resultSet.getInt(3));
+        assertFalse(resultSet.wasNull());
+        assertEquals("34".getBytes(StandardCharsets.UTF_8).length, resultSet.getBytes(3).length);
+        assertThrows(SQLException.class, () -> resultSet.getTimestamp(4));
+        assertEquals(4, resultSet.getMetaData().getColumnCount());
+        assertEquals("c", resultSet.getMetaData().getColumnLabel(3));
+    }
+
+    /**
+     * Encode the value followed by a NULL column, so a wrong value length is detected by decoding the next column
+     */
+    private static Object roundTrip(Object value) throws SQLException, IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        RowCodec.encode(RowCodec.toResultSet(new Object[]{value, null}, new String[]{"value", "next"}), 2, output);
+        Object[] values = RowCodec.decode(ByteBuffer.wrap(bytes.toByteArray()), 0, 2);
+        assertNull(values[1]);
+        return values[0];
+    }
+}
@@ -0,0 +1,137 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.annotations.OrderBy;
+import com.hvantran.sqlnative.interfaces.AppException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardResultMergerTest {
+
+    public static class Row {
+
+        private final Long id;
+
+        private final String applicationName;
+
+        Row(Long id, String applicationName) {
+            this.id = id;
+            this.applicationName = applicationName;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getApplicationName() {
+            return applicationName;
+        }
+
+        @Override
+        public String toString() {
+            return id + ":" + applicationName;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private interface OrderByMethods {
+
+        @OrderBy("ID")
+        void byId();
+
+        @OrderBy("t.application_name DESC, id asc")
+        void byApplicationNameDescThenId();
+
+        @OrderBy("id NULLS FIRST")
+        void nullsFirst();
+
+        @OrderBy("LOWER(application_name)")
+        void expression();
+
+        @OrderBy("created_date")
+        void unmappedColumn();
+    }
+
+    @Test
+    void mergeSortedMergesSortedLists() {
+        List<List<Integer>> sortedLists = List.of(List.of(1, 4, 9), List.of(), List.of(2, 3, 10), List.of(5));
+
+        List<Integer> rows = ShardResultMerger.mergeSorted(sortedLists, Comparator.naturalOrder());
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 9, 10), rows);
+    }
+
+    @Test
+    void mergeSortedKeepsAllEqualRows() {
+        Row first = new Row(1L, "a");
+        Row second = new Row(1L, "b");
+
+        List<Row> rows = ShardResultMerger.mergeSorted(List.of(List.of(first), List.of(second)), Comparator.comparing(Row::getId));
+
+        assertEquals(2, rows.size());
+        assertTrue(rows.containsAll(List.of(first, second)));
+    }
+
+    @Test
+    void mergeSortedReturnsEmptyListWithoutShards() {
+        assertEquals(List.of(), ShardResultMerger.mergeSorted(List.<List<Integer>>of(), Comparator.naturalOrder()));
+    }
+
+    @Test
+    void comparatorSortsByOrderByColumn() {
+        Comparator<Object> comparator = ShardResultMerger.getComparator(getOrderBy("byId"), Row.class);
+        List<Object> rows = new ArrayList<>(List.of(new Row(3L, "c"), new Row(null, "n"), new Row(1L, "a")));
+
+        rows.sort(comparator);
+
+        assertEquals("[null:n, 1:a, 3:c]", rows.toString());
+    }
+
+    @Test
+    void comparatorSortsBySeveralColumnsWithDirection() {
+        Comparator<Object> comparator = ShardResultMerger.getComparator(getOrderBy("byApplicationNameDescThenId"), Row.class);
+        List<Object> rows = new ArrayList<>(List.of(new Row(2L, "a"), new Row(3L, "b"), new Row(1L, "a")));
+
+        rows.sort(comparator);
+
+        assertEquals("[3:b, 1:a, 2:a]", rows.toString());
+    }
+
+    @Test
+    void comparatorRejectsUnsupportedOrderBy() {
+        for (String methodName : Arrays.asList("nullsFirst", "expression", "unmappedColumn")) {
+            OrderBy orderBy = getOrderBy(methodName);
+            assertThrows(AppException.class, () -> ShardResultMerger.getComparator(orderBy, Row.class), methodName);
+        }
+    }
+
+    @Test
+    void mergeSumsRowCounts() {
+        assertEquals(5, ShardResultMerger.merge(List.of(2, 3), null));
+    }
+
+    @Test
+    void mergeConcatenatesListsWithoutComparator() {
+        Object rows = ShardResultMerger.merge(List.of(List.of(3, 1), List.of(2)), null);
+
+        assertEquals(List.of(3, 1, 2), rows);
+    }
+
+    @Test
+    void mergeReturnsNullForVoidMethods() {
+        assertNull(ShardResultMerger.merge(Arrays.asList(null, null), null));
+    }
+
+    private static OrderBy getOrderBy(String methodName) {
+        try {
+            return OrderByMethods.class.getDeclaredMethod(methodName).getAnnotation(OrderBy.class);
+        } catch (NoSuchMethodException exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+}
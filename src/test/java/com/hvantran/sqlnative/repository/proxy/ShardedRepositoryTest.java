@@ -0,0 +1,155 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.annotations.*;
+import com.hvantran.sqlnative.interfaces.AppException;
+import com.hvantran.sqlnative.interfaces.GenericRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a sharded repository against two in-memory H2 databases
+ */
+public class ShardedRepositoryTest {
+
+    private static final String SHARD0_URL = "jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1";
+
+    private static final String SHARD1_URL = "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1";
+
+    private static final String[] SHARD_URLS = {SHARD0_URL, SHARD1_URL};
+
+    public static class Account {
+
+        private Long id;
+
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return id + ":" + name;
+        }
+    }
+
+    @Database(shardUrls = {SHARD0_URL, SHARD1_URL})
+    public interface AccountRepository extends GenericRepository {
+
+        @Insert("account (id, name)")
+        @Values("({id}, '{name}')")
+        int insert(@ShardKey @Param("id") int id, @Param("name") String name);
+
+        @Insert("account (id, name)")
+        @Values("({id}, '{name}')")
+        int insertWithoutShardKey(@Param("id") int id, @Param("name") String name);
+
+        @Select("id, name")
+        @From("account")
+        @Where("id = {id}")
+        List<Account> findById(Class<Account> klass, @ShardKey @Param("id") long id);
+
+        @Select("id, name")
+        @From("account")
+        @OrderBy("id DESC")
+        List<Account> findAll(Class<Account> klass);
+
+        @Update("account")
+        @Set("name = '{name}'")
+        int renameAll(@Param("name") String name);
+
+        @AllShards
+        @Delete("account")
+        @Where("id > {id}")
+        int deleteAfter(@Param("id") int id);
+    }
+
+    private AccountRepository accountRepository;
+
+    @BeforeEach
+    void createTables() throws SQLException {
+        for (String shardUrl : SHARD_URLS) {
+            try (Connection connection = DriverManager.getConnection(shardUrl); Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE account (id BIGINT PRIMARY KEY, name VARCHAR(64))");
+            }
+        }
+        accountRepository = RepoProxyFactory.getRepositoryProxyInstance(AccountRepository.class);
+    }
+
+    @AfterEach
+    void dropTables() throws SQLException {
+        accountRepository.close();
+        for (String shardUrl : SHARD_URLS) {
+            try (Connection connection = DriverManager.getConnection(shardUrl); Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE account");
+            }
+        }
+    }
+
+    @Test
+    void rowsAreInsertedOnOneShardAndFoundByShardKey() throws SQLException {
+        for (int id = 1; id <= 10; id++) {
+            assertEquals(1, accountRepository.insert(id, "account" + id));
+        }
+
+        assertEquals(10, countRows(SHARD0_URL) + countRows(SHARD1_URL));
+        assertTrue(countRows(SHARD0_URL) > 0 && countRows(SHARD1_URL) > 0);
+        for (long id = 1; id <= 10; id++) {
+            List<Account> accounts = accountRepository.findById(Account.class, id);
+            assertEquals(1, accounts.size());
+            assertEquals("account" + id, accounts.get(0).getName());
+        }
+    }
+
+    @Test
+    void queriesWithoutShardKeyAreMergedFromAllShards() {
+        for (int id = 1; id <= 10; id++) {
+            accountRepository.insert(id, "account" + id);
+        }
+
+        List<Account> accounts = accountRepository.findAll(Account.class);
+
+        assertEquals(List.of(10L, 9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L), accounts.stream().map(Account::getId).toList());
+        assertEquals(5, accountRepository.deleteAfter(5));
+        assertEquals(5, accountRepository.findAll(Account.class).size());
+    }
+
+    @Test
+    void writesWithoutShardKeyAreRejected() {
+        accountRepository.insert(1, "account1");
+
+        assertThrows(AppException.class, () -> accountRepository.insertWithoutShardKey(2, "account2"));
+        assertThrows(AppException.class, () -> accountRepository.renameAll("renamed"));
+        assertEquals("[1:account1]", accountRepository.findAll(Account.class).toString());
+    }
+
+    private static long countRows(String shardUrl) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(shardUrl); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM account")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.hvantran.sqlnative.repository.proxy;
+
+import com.hvantran.sqlnative.annotations.Database;
+import com.hvantran.sqlnative.annotations.WriteBehind;
+import com.hvantran.sqlnative.interfaces.AppException;
+import com.hvantran.sqlnative.interfaces.WriteErrorHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindBufferTest {
+
+    private static final String DATABASE_URL = "jdbc:h2:mem:write-behind;DB_CLOSE_DELAY=-1";
+
+    @Database(url = DATABASE_URL)
+    @SuppressWarnings("unused")
+    private interface WriteBehindMethods {
+
+        @WriteBehind(capacity = 1, batchSize = 10, flushIntervalMillis = 60000, overflowPolicy = WriteBehind.OverflowPolicy.DROP)
+        void drop();
+
+        @WriteBehind(capacity = 2, batchSize = 10, flushIntervalMillis = 60000, overflowPolicy = WriteBehind.OverflowPolicy.CALLER_RUNS)
+        void callerRuns();
+
+        @WriteBehind(capacity = 1, batchSize = 10, flushIntervalMillis = 60000, blockTimeoutMillis = 50)
+        void block();
+
+        @WriteBehind(capacity = 10, batchSize = 10, flushIntervalMillis = 60000)
+        void batch();
+    }
+
+    private final List<String> failedQueries = Collections.synchronizedList(new ArrayList<>());
+
+    private final WriteErrorHandler errorHandler = (queries, exception) -> failedQueries.addAll(queries);
+
+    private Connection connection;
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        connection = DriverManager.getConnection(DATABASE_URL);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE event (id INT PRIMARY KEY, amount INT)");
+        }
+    }
+
+    @AfterEach
+    void dropTable() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE event");
+        }
+        connection.close();
+    }
+
+    @Test
+    void dropReportsQueryWhenBufferIsFull() throws SQLException {
+        WriteBehindBuffer buffer = newBuffer("drop");
+
+        buffer.enqueue(insert(1));
+        buffer.enqueue(insert(2));
+        buffer.close();
+
+        assertEquals(List.of(insert(2)), failedQueries);
+        assertEquals(List.of(1), getIds());
+    }
+
+    @Test
+    void callerRunsExecutesQueuedQueriesBeforeItsQuery() throws SQLException {
+        WriteBehindBuffer buffer = newBuffer("callerRuns");
+
+        buffer.enqueue(insert(1));
+        buffer.enqueue(insert(2));
+        buffer.enqueue("UPDATE event SET amount = amount * 10;");
+
+        assertEquals(List.of(10, 20), getAmounts());
+        buffer.close();
+        assertTrue(failedQueries.isEmpty());
+    }
+
+    @Test
+    void blockFailsWhenBufferIsStillFullAfterTimeout() throws SQLException {
+        WriteBehindBuffer buffer = newBuffer("block");
+
+        // A flush holds the buffer lock, so holding it keeps the buffer full
+        synchronized (buffer) {
+            buffer.enqueue(insert(1));
+            AppException exception = assertThrows(AppException.class, () -> buffer.enqueue(insert(2)));
+            assertTrue(exception.getMessage().contains("50 ms"));
+        }
+        buffer.close();
+
+        assertEquals(List.of(1), getIds());
+    }
+
+    @Test
+    void enqueueFailsWhenBufferIsClosed() {
+        WriteBehindBuffer buffer = newBuffer("block");
+        buffer.close();
+
+        assertThrows(AppException.class, () -> buffer.enqueue(insert(1)));
+    }
+
+    @Test
+    void onlyFailedQueriesOfBatchAreReported() throws SQLException {
+        WriteBehindBuffer buffer = newBuffer("batch");
+
+        buffer.enqueue(insert(1));
+        buffer.enqueue(insert(1));
+        buffer.enqueue(insert(2));
+        buffer.close();
+
+        assertEquals(List.of(insert(1)), failedQueries);
+        assertEquals(List.of(1, 2), getIds());
+    }
+
+    private WriteBehindBuffer newBuffer(String methodName) {
+        try {
+            WriteBehind writeBehind = WriteBehindMethods.class.getDeclaredMethod(methodName).getAnnotation(WriteBehind.class);
+            Database database = WriteBehindMethods.class.getAnnotation(Database.class);
+            return new WriteBehindBuffer(writeBehind, DATABASE_URL, database, new Properties(), errorHandler);
+        } catch (NoSuchMethodException exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+
+    private static String insert(int id) {
+        return "INSERT INTO event (id, amount) VALUES (%d, %d);".formatted(id, id);
+    }
+
+    private List<Integer> getIds() throws SQLException {
+        return getColumn("id");
+    }
+
+    private List<Integer> getAmounts() throws SQLException {
+        return getColumn("amount");
+    }
+
+    private List<Integer> getColumn(String columnName) throws SQLException {
+        List<Integer> values = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT " + columnName + " FROM event ORDER BY id")) {
+            while (resultSet.next()) {
+                values.add(resultSet.getInt(1));
+            }
+        }
+        return values;
+    }
+}